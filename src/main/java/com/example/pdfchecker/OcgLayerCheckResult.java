@@ -9,4 +9,38 @@ public class OcgLayerCheckResult {
     public java.util.List<LayerInfo> layers = new java.util.ArrayList<>();
     public java.util.Map<Integer, java.util.Set<String>> pageLayerUsage = new java.util.HashMap<>();
     public String error;                  // non-null if check failed
+
+    @Override
+    public String toString() {
+        if (error != null) {
+            return "OCG check error: " + error;
+        }
+        if (!hasLayers) {
+            return "Has OCG layers: NO";
+        }
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("Has OCG layers: YES\n");
+        sb.append("Layer count: ").append(layerCount).append("\n");
+        sb.append("Base state: ").append(baseState != null ? baseState : "Default (ON)").append("\n");
+        sb.append("Custom order: ").append(hasCustomOrder ? "YES" : "NO").append("\n");
+        sb.append("Locked layers: ").append(hasLockedLayers ? "YES" : "NO").append("\n");
+
+        if (!layers.isEmpty()) {
+            sb.append("Layers:\n");
+            for (LayerInfo li : layers) {
+                String nm = li.name != null ? li.name : "(Unnamed)";
+                String st = li.defaultState != null ? li.defaultState : "?";
+                String in = li.intent != null ? (" intent=" + li.intent) : "";
+                sb.append("  • ").append(nm).append(" [").append(st).append("]").append(in).append("\n");
+            }
+        }
+        if (!pageLayerUsage.isEmpty()) {
+            sb.append("Pages using layers:\n");
+            pageLayerUsage.forEach((p, set) ->
+                sb.append("  Page ").append(p).append(": ").append(String.join(", ", set)).append("\n"));
+        }
+        sb.append("WARNING: This PDF contains OCG layers; stamping overlays or merging with OCG-based page numbers can conflict with existing layers.");
+        return sb.toString();
+    }
 }
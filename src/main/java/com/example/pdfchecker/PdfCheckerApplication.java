@@ -7,7 +7,7 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
 public class PdfCheckerApplication {
 
 	public static void main(String[] args) {
-		SpringApplication.run(PdfCheckerApplication.class, args);
+		System.exit(SpringApplication.exit(SpringApplication.run(PdfCheckerApplication.class, args)));
 	}
 
 }
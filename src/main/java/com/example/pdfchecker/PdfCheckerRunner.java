@@ -3,53 +3,64 @@ package com.example.pdfchecker;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.ExitCodeGenerator;
 import org.springframework.stereotype.Component;
 
 import com.itextpdf.text.pdf.PdfReader;
 
 import java.io.File;
 import java.io.FileInputStream;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.stream.Collectors;
 
 @Component
-public class PdfCheckerRunner implements CommandLineRunner {
+public class PdfCheckerRunner implements CommandLineRunner, ExitCodeGenerator {
 
     private static final Logger logger = LoggerFactory.getLogger(PdfCheckerRunner.class);
     private final PdfDiscrepancyChecker checker;
     private final OcgLayerCheckService ocgLayerCheckService;
+    private final ShardedBatchService shardedBatchService;
+    private int exitCode = 0;
 
-    public PdfCheckerRunner(PdfDiscrepancyChecker checker, OcgLayerCheckService ocgLayerCheckService) {
+    public PdfCheckerRunner(PdfDiscrepancyChecker checker, OcgLayerCheckService ocgLayerCheckService,
+                            ShardedBatchService shardedBatchService) {
         this.checker = checker;
         this.ocgLayerCheckService = ocgLayerCheckService;
+        this.shardedBatchService = shardedBatchService;
     }
 
     @Override
     public void run(String... args) throws Exception {
         logger.info("=== PDF Page Count Discrepancy Checker ===\n");
+
+        // "--key=value" arguments are Spring properties or sharded-mode options, the rest are input files
+        List<String> files = Arrays.stream(args)
+            .filter(arg -> !arg.startsWith("--"))
+            .collect(Collectors.toList());
+
+        String coordinateDir = optionValue(args, "--coordinate=");
+        String workDir = optionValue(args, "--work=");
+        String mergeDir = optionValue(args, "--merge=");
+
+        if (coordinateDir != null || workDir != null || mergeDir != null) {
+            exitCode = runSharded(coordinateDir, workDir, mergeDir, files, optionValue(args, "--worker-id="));
+            return;
+        }
         
-        if (args.length == 0) {
+        if (files.isEmpty()) {
             logger.error("Usage: java -jar pdf-checker.jar <pdf-file-path> [<pdf-file-path2> ...]");
             logger.error("Example: java -jar pdf-checker.jar /path/to/document.pdf");
+            logger.error("Sharded: --coordinate=<shared-dir> <files...> | --work=<shared-dir> [--worker-id=<id>] | --merge=<shared-dir>");
             return;
         }
 
         List<DiscrepancyResult> structureResults = new ArrayList<>();
         List<CopyOperationResult> copyResults = new ArrayList<>();
         
-        for (String filePath : args) {
-            File pdfFile = new File(filePath);
-            
-            if (!pdfFile.exists()) {
-                logger.error("File not found: {}", filePath);
-                continue;
-            }
-            
-            if (!pdfFile.getName().toLowerCase().endsWith(".pdf")) {
-                logger.warn("Skipping non-PDF file: {}", filePath);
-                continue;
-            }
-            
+        for (File pdfFile : selectPdfFiles(files)) {
             logger.info("Checking: {}\n", pdfFile.getName());
             
             // Check 1: Page tree structure discrepancy
@@ -74,33 +85,7 @@ public class PdfCheckerRunner implements CommandLineRunner {
 
                 System.out.println();
                 System.out.println("=== Check 3: OCG layers ===");
-                if (ocg.error != null) {
-                    System.out.println("OCG check error: " + ocg.error);
-                } else if (!ocg.hasLayers) {
-                    System.out.println("Has OCG layers: NO");
-                } else {
-                    System.out.println("Has OCG layers: YES");
-                    System.out.println("Layer count: " + ocg.layerCount);
-                    System.out.println("Base state: " + (ocg.baseState != null ? ocg.baseState : "Default (ON)"));
-                    System.out.println("Custom order: " + (ocg.hasCustomOrder ? "YES" : "NO"));
-                    System.out.println("Locked layers: " + (ocg.hasLockedLayers ? "YES" : "NO"));
-
-                    if (!ocg.layers.isEmpty()) {
-                        System.out.println("Layers:");
-                        for (LayerInfo li : ocg.layers) {
-                            String nm = li.name != null ? li.name : "(Unnamed)";
-                            String st = li.defaultState != null ? li.defaultState : "?";
-                            String in = li.intent != null ? (" intent=" + li.intent) : "";
-                            System.out.println("  • " + nm + " [" + st + "]" + in);
-                        }
-                    }
-                    if (!ocg.pageLayerUsage.isEmpty()) {
-                        System.out.println("Pages using layers:");
-                        ocg.pageLayerUsage.forEach((p, set) ->
-                            System.out.println("  Page " + p + ": " + String.join(", ", set)));
-                    }
-                    System.out.println("WARNING: This PDF contains OCG layers; stamping overlays or merging with OCG-based page numbers can conflict with existing layers.");
-                }
+                System.out.println(ocg);
             } catch (Exception ex) {
                 System.out.println("OCG check failed: " + ex.getMessage());
             }
@@ -124,4 +109,72 @@ public class PdfCheckerRunner implements CommandLineRunner {
         logger.info("Files without issues: {}", 
                    structureResults.size() - structureDiscrepancyCount - copyMismatchCount);
     }
+
+    @Override
+    public int getExitCode() {
+        return exitCode;
+    }
+
+    /**
+     * Run one sharded-mode step. Returns the process exit code: non-zero on bad input or an incomplete merge.
+     */
+    private int runSharded(String coordinateDir, String workDir, String mergeDir,
+                           List<String> files, String workerId) throws Exception {
+        try {
+            if (coordinateDir != null) {
+                if (files.isEmpty()) {
+                    logger.error("Usage: java -jar pdf-checker.jar --coordinate=<shared-dir> <pdf-file-path> [<pdf-file-path2> ...]");
+                    return 1;
+                }
+                shardedBatchService.coordinate(Paths.get(coordinateDir), selectPdfFiles(files));
+                return 0;
+            }
+            if (workDir != null) {
+                shardedBatchService.work(Paths.get(workDir),
+                    workerId != null ? workerId : ShardedBatchService.defaultWorkerId());
+                return 0;
+            }
+            if (!shardedBatchService.merge(Paths.get(mergeDir))) {
+                logger.error("Merge is incomplete: some shards have no result yet");
+                return 2;
+            }
+            return 0;
+        } catch (IllegalStateException | IllegalArgumentException e) {
+            // Missing or malformed manifest, manifest from an earlier run, unreadable result line
+            logger.error(e.getMessage());
+            return 1;
+        }
+    }
+
+    /**
+     * Keep only existing PDF files, logging the ones that are skipped
+     */
+    private List<File> selectPdfFiles(List<String> filePaths) {
+        List<File> pdfFiles = new ArrayList<>();
+        for (String filePath : filePaths) {
+            File pdfFile = new File(filePath);
+            
+            if (!pdfFile.exists()) {
+                logger.error("File not found: {}", filePath);
+                continue;
+            }
+            
+            if (!pdfFile.getName().toLowerCase().endsWith(".pdf")) {
+                logger.warn("Skipping non-PDF file: {}", filePath);
+                continue;
+            }
+            
+            pdfFiles.add(pdfFile);
+        }
+        return pdfFiles;
+    }
+
+    private String optionValue(String[] args, String prefix) {
+        for (String arg : args) {
+            if (arg.startsWith(prefix)) {
+                return arg.substring(prefix.length());
+            }
+        }
+        return null;
+    }
 }
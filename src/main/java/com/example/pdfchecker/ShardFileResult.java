@@ -0,0 +1,161 @@
+package com.example.pdfchecker;
+
+import java.util.stream.Collectors;
+
+public class ShardFileResult {
+    private static final String SEPARATOR = "\t";
+    private static final int FIELD_COUNT = 10;
+
+    private final String filePath;
+    private final int declaredCount;
+    private final int actualKidsCount;
+    private final boolean hasDiscrepancy;
+    private final boolean hasMismatch;
+    private final boolean hasOcgLayers;
+    private final String copyMessage;
+    private final String copyReport;      // full CopyOperationResult output incl. state timeline, mismatches only
+    private final String ocgReport;       // full OcgLayerCheckResult output, files with layers or OCG errors only
+    private final String errorMessage;
+
+    public ShardFileResult(String filePath, int declaredCount, int actualKidsCount,
+                           boolean hasDiscrepancy, boolean hasMismatch, boolean hasOcgLayers,
+                           String copyMessage, String copyReport, String ocgReport,
+                           String errorMessage) {
+        this.filePath = filePath;
+        this.declaredCount = declaredCount;
+        this.actualKidsCount = actualKidsCount;
+        this.hasDiscrepancy = hasDiscrepancy;
+        this.hasMismatch = hasMismatch;
+        this.hasOcgLayers = hasOcgLayers;
+        this.copyMessage = copyMessage;
+        this.copyReport = copyReport;
+        this.ocgReport = ocgReport;
+        this.errorMessage = errorMessage;
+    }
+
+    /**
+     * Serialize as a single tab-separated line for a per-shard result file.
+     * Tabs, line breaks and backslashes inside values are escaped so fromLine restores them exactly.
+     */
+    public String toLine() {
+        return String.join(SEPARATOR,
+            escape(filePath),
+            String.valueOf(declaredCount),
+            String.valueOf(actualKidsCount),
+            String.valueOf(hasDiscrepancy),
+            String.valueOf(hasMismatch),
+            String.valueOf(hasOcgLayers),
+            escape(copyMessage),
+            escape(copyReport),
+            escape(ocgReport),
+            escape(errorMessage));
+    }
+
+    public static ShardFileResult fromLine(String line) {
+        String[] parts = line.split(SEPARATOR, -1);
+        if (parts.length != FIELD_COUNT) {
+            throw new IllegalArgumentException("Malformed shard result line: " + line);
+        }
+        return new ShardFileResult(
+            unescape(parts[0]),
+            Integer.parseInt(parts[1]),
+            Integer.parseInt(parts[2]),
+            Boolean.parseBoolean(parts[3]),
+            Boolean.parseBoolean(parts[4]),
+            Boolean.parseBoolean(parts[5]),
+            unescape(parts[6]),
+            unescape(parts[7]),
+            unescape(parts[8]),
+            unescape(parts[9])
+        );
+    }
+
+    /**
+     * Null is written as an empty field; an empty string as a lone backslash-zero so it survives the round trip
+     */
+    private static String escape(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.isEmpty()) {
+            return "\\0";
+        }
+        StringBuilder sb = new StringBuilder(value.length());
+        for (char c : value.toCharArray()) {
+            switch (c) {
+                case '\\': sb.append("\\\\"); break;
+                case '\t': sb.append("\\t"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                default: sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String unescape(String value) {
+        if (value.isEmpty()) {
+            return null;
+        }
+        if (value.equals("\\0")) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c != '\\' || i + 1 == value.length()) {
+                sb.append(c);
+                continue;
+            }
+            char next = value.charAt(++i);
+            switch (next) {
+                case 't': sb.append('\t'); break;
+                case 'n': sb.append('\n'); break;
+                case 'r': sb.append('\r'); break;
+                default: sb.append(next);
+            }
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        if (errorMessage != null) {
+            return String.format("File: %s - %s", filePath, errorMessage);
+        }
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%s '%s': declared /Count=%d, actual Kids=%d, page tree discrepancy=%s, PdfCopy mismatch=%s, OCG layers=%s",
+            hasDiscrepancy || hasMismatch ? "⚠" : "✓",
+            filePath,
+            declaredCount,
+            actualKidsCount,
+            hasDiscrepancy ? "YES" : "NO",
+            hasMismatch ? "YES" : "NO",
+            hasOcgLayers ? "YES" : "NO"));
+        if (copyReport != null) {
+            sb.append("\n").append(indent(copyReport.stripTrailing()));
+        } else if (hasMismatch && copyMessage != null) {
+            sb.append("\n   PdfCopy: ").append(copyMessage);
+        }
+        if (ocgReport != null) {
+            sb.append("\n").append(indent(ocgReport.stripTrailing()));
+        }
+        return sb.toString();
+    }
+
+    private static String indent(String text) {
+        return text.lines().map(line -> "   " + line).collect(Collectors.joining("\n"));
+    }
+
+    // Getters
+    public String getFilePath() { return filePath; }
+    public int getDeclaredCount() { return declaredCount; }
+    public int getActualKidsCount() { return actualKidsCount; }
+    public boolean hasDiscrepancy() { return hasDiscrepancy; }
+    public boolean hasMismatch() { return hasMismatch; }
+    public boolean hasOcgLayers() { return hasOcgLayers; }
+    public String getCopyMessage() { return copyMessage; }
+    public String getCopyReport() { return copyReport; }
+    public String getOcgReport() { return ocgReport; }
+    public String getErrorMessage() { return errorMessage; }
+}
@@ -0,0 +1,555 @@
+package com.example.pdfchecker;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.itextpdf.text.pdf.PdfReader;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Coordinator/worker mode for splitting a large batch across several processes or machines.
+ *
+ * All coordination happens through files in one shared directory:
+ * <pre>
+ *   manifest.properties        written last by the coordinator, lists the shard count
+ *   shards/shard-NNNNN.txt     input PDF paths, one per line
+ *   leases/shard-NNNNN.lease   owning worker id, created atomically by the claiming worker
+ *   leases/shard-NNNNN.reclaim short-lived guard held while an expired lease is being replaced
+ *   results/shard-NNNNN.tsv    per-file results, moved into place atomically when a shard is done
+ *   summary.txt                combined summary written by the merge step
+ * </pre>
+ * A lease expires {@code lease-seconds} after its file was last modified. While a shard is being
+ * processed a background heartbeat rewrites the lease every third of that, so a single slow PDF
+ * does not lose it. Both the modification time and "now" are taken from the shared filesystem,
+ * so the nodes' own clocks do not need to agree.
+ * <p>
+ * A shard is done once its result file exists. The only expected duplicate work is when a worker
+ * cannot renew for longer than the lease (hung JVM, unreachable shared directory): another worker
+ * reclaims the shard and both may finish it.
+ * Result files are idempotent, so the second one just replaces the first with the same content.
+ */
+@Service
+public class ShardedBatchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardedBatchService.class);
+
+    private static final String MANIFEST_FILE = "manifest.properties";
+    private static final String SUMMARY_FILE = "summary.txt";
+    private static final String SHARDS_DIR = "shards";
+    private static final String LEASES_DIR = "leases";
+    private static final String RESULTS_DIR = "results";
+    private static final int RENEW_ATTEMPTS = 3;
+
+    private final PdfDiscrepancyChecker checker;
+    private final OcgLayerCheckService ocgLayerCheckService;
+    private final int shardSize;
+    private final long leaseMillis;
+    private final long pollMillis;
+
+    public ShardedBatchService(PdfDiscrepancyChecker checker,
+                               OcgLayerCheckService ocgLayerCheckService,
+                               @Value("${pdfchecker.shard.size:50}") int shardSize,
+                               @Value("${pdfchecker.shard.lease-seconds:300}") long leaseSeconds,
+                               @Value("${pdfchecker.shard.poll-seconds:10}") long pollSeconds) {
+        if (shardSize < 1) {
+            throw new IllegalArgumentException("pdfchecker.shard.size must be at least 1");
+        }
+        if (leaseSeconds < 1) {
+            throw new IllegalArgumentException("pdfchecker.shard.lease-seconds must be at least 1");
+        }
+        if (pollSeconds < 1) {
+            throw new IllegalArgumentException("pdfchecker.shard.poll-seconds must be at least 1");
+        }
+        this.checker = checker;
+        this.ocgLayerCheckService = ocgLayerCheckService;
+        this.shardSize = shardSize;
+        this.leaseMillis = leaseSeconds * 1000L;
+        this.pollMillis = pollSeconds * 1000L;
+    }
+
+    /**
+     * Split the input PDFs into shards and publish the manifest. Returns the number of shards written.
+     * Throws IllegalStateException if the directory already holds a manifest from an earlier run.
+     */
+    public int coordinate(Path sharedDir, List<File> pdfFiles) throws IOException {
+        Path manifest = sharedDir.resolve(MANIFEST_FILE);
+        if (Files.exists(manifest)) {
+            throw new IllegalStateException("Shared directory already contains a manifest: " + manifest);
+        }
+        Files.createDirectories(sharedDir.resolve(SHARDS_DIR));
+        Files.createDirectories(sharedDir.resolve(LEASES_DIR));
+        Files.createDirectories(sharedDir.resolve(RESULTS_DIR));
+
+        List<String> inputs = new ArrayList<>();
+        for (File pdfFile : pdfFiles) {
+            inputs.add(pdfFile.getAbsolutePath());
+        }
+
+        int shardCount = 0;
+        for (int from = 0; from < inputs.size(); from += shardSize) {
+            List<String> shard = inputs.subList(from, Math.min(from + shardSize, inputs.size()));
+            writeAtomically(shardFile(sharedDir, shardCount), String.join("\n", shard) + "\n");
+            shardCount++;
+        }
+
+        // The manifest goes last so workers never see a partially written shard set
+        writeAtomically(manifest,
+            "shardCount=" + shardCount + "\n" +
+            "fileCount=" + inputs.size() + "\n" +
+            "createdAt=" + System.currentTimeMillis() + "\n");
+
+        logger.info("Wrote {} file(s) into {} shard(s) under {}", inputs.size(), shardCount, sharedDir);
+        return shardCount;
+    }
+
+    /**
+     * Claim and process shards until every shard in the manifest has a result file.
+     * Shards leased by other workers are revisited after the poll interval so that
+     * leases left behind by dead workers are reclaimed once they expire.
+     * Returns the number of shards processed by this worker.
+     */
+    public int work(Path sharedDir, String workerId) throws IOException, InterruptedException {
+        int shardCount = readShardCount(sharedDir);
+        int processed = 0;
+
+        Path leasesDir = sharedDir.resolve(LEASES_DIR);
+
+        logger.info("Worker {} started on {} shard(s) in {}", workerId, shardCount, sharedDir);
+
+        ScheduledExecutorService heartbeat = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "lease-heartbeat-" + workerId);
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            while (true) {
+                int pending = 0;
+                // One filesystem clock read per pass rather than one per lease we look at
+                long now = filesystemNow(leasesDir);
+                for (int shard = 0; shard < shardCount; shard++) {
+                    if (Files.exists(resultFile(sharedDir, shard))) {
+                        continue;
+                    }
+                    if (!tryClaim(sharedDir, shard, workerId, now)) {
+                        pending++;
+                        continue;
+                    }
+                    try {
+                        // Another worker may have finished it between our check and the claim
+                        if (Files.exists(resultFile(sharedDir, shard))) {
+                            continue;
+                        }
+                        if (processShard(sharedDir, shard, workerId, heartbeat)) {
+                            processed++;
+                        } else {
+                            pending++;
+                        }
+                        now = filesystemNow(leasesDir);
+                    } finally {
+                        release(sharedDir, shard, workerId);
+                    }
+                }
+
+                if (pending == 0) {
+                    break;
+                }
+                logger.info("Worker {}: {} shard(s) not yet complete, waiting", workerId, pending);
+                Thread.sleep(pollMillis);
+            }
+        } finally {
+            heartbeat.shutdownNow();
+        }
+
+        logger.info("Worker {} finished, processed {} shard(s)", workerId, processed);
+        return processed;
+    }
+
+    /**
+     * Combine all per-shard result files into one summary. Returns false if any shard has no result yet.
+     */
+    public boolean merge(Path sharedDir) throws IOException {
+        int shardCount = readShardCount(sharedDir);
+
+        List<ShardFileResult> results = new ArrayList<>();
+        List<Integer> missingShards = new ArrayList<>();
+        for (int shard = 0; shard < shardCount; shard++) {
+            Path result = resultFile(sharedDir, shard);
+            if (!Files.exists(result)) {
+                missingShards.add(shard);
+                continue;
+            }
+            for (String line : Files.readAllLines(result, StandardCharsets.UTF_8)) {
+                if (!line.isBlank()) {
+                    results.add(ShardFileResult.fromLine(line));
+                }
+            }
+        }
+
+        long errorCount = results.stream().filter(r -> r.getErrorMessage() != null).count();
+        long structureDiscrepancyCount = results.stream().filter(ShardFileResult::hasDiscrepancy).count();
+        long copyMismatchCount = results.stream().filter(ShardFileResult::hasMismatch).count();
+        long ocgLayerCount = results.stream().filter(ShardFileResult::hasOcgLayers).count();
+        long cleanCount = results.stream()
+            .filter(r -> r.getErrorMessage() == null && !r.hasDiscrepancy() && !r.hasMismatch())
+            .count();
+
+        StringBuilder sb = new StringBuilder();
+        for (ShardFileResult result : results) {
+            sb.append(result).append('\n');
+        }
+        sb.append('\n');
+        sb.append("=== Summary ===\n");
+        sb.append(String.format("Shards merged: %d of %d\n", shardCount - missingShards.size(), shardCount));
+        sb.append(String.format("Total files checked: %d\n", results.size()));
+        sb.append(String.format("Files with errors: %d\n", errorCount));
+        sb.append(String.format("Files with page tree discrepancy: %d\n", structureDiscrepancyCount));
+        sb.append(String.format("Files with PdfCopy state mismatch: %d\n", copyMismatchCount));
+        sb.append(String.format("Files with OCG layers: %d\n", ocgLayerCount));
+        sb.append(String.format("Files without issues: %d\n", cleanCount));
+        if (!missingShards.isEmpty()) {
+            sb.append("Incomplete shards: ").append(missingShards).append('\n');
+        }
+        writeAtomically(sharedDir.resolve(SUMMARY_FILE), sb.toString());
+
+        logger.info("=== Summary ===");
+        logger.info("Shards merged: {} of {}", shardCount - missingShards.size(), shardCount);
+        logger.info("Total files checked: {}", results.size());
+        logger.info("Files with errors: {}", errorCount);
+        logger.info("Files with page tree discrepancy: {}", structureDiscrepancyCount);
+        logger.info("Files with PdfCopy state mismatch: {}", copyMismatchCount);
+        logger.info("Files with OCG layers: {}", ocgLayerCount);
+        logger.info("Files without issues: {}", cleanCount);
+        if (!missingShards.isEmpty()) {
+            logger.warn("Incomplete shards (no result file yet): {}", missingShards);
+        }
+        logger.info("Summary written to {}", sharedDir.resolve(SUMMARY_FILE));
+        return missingShards.isEmpty();
+    }
+
+    /**
+     * Default worker id: host name plus process id, unique across processes sharing one directory
+     */
+    public static String defaultWorkerId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (IOException e) {
+            host = "localhost";
+        }
+        return host + "-" + ProcessHandle.current().pid();
+    }
+
+    /**
+     * Run all checks on one shard while the heartbeat keeps its lease alive.
+     * Returns false if a renew found the lease owned by another worker.
+     */
+    private boolean processShard(Path sharedDir, int shard, String workerId, ScheduledExecutorService heartbeat)
+            throws IOException, InterruptedException {
+        List<String> filePaths = Files.readAllLines(shardFile(sharedDir, shard), StandardCharsets.UTF_8);
+        StringBuilder sb = new StringBuilder();
+
+        logger.info("Worker {} processing shard {} ({} file(s))", workerId, shard, filePaths.size());
+
+        AtomicBoolean leaseLost = new AtomicBoolean(false);
+        long renewMillis = leaseMillis / 3;
+        ScheduledFuture<?> beat = heartbeat.scheduleAtFixedRate(() -> {
+            try {
+                if (!renew(sharedDir, shard, workerId)) {
+                    leaseLost.set(true);
+                }
+            } catch (IOException | RuntimeException e) {
+                // A failed renew is retried on the next beat; only another owner means the lease is gone
+                logger.warn("Worker {} could not renew lease on shard {}: {}", workerId, shard, e.getMessage());
+            }
+        }, renewMillis, renewMillis, TimeUnit.MILLISECONDS);
+
+        try {
+            for (String filePath : filePaths) {
+                if (leaseLost.get()) {
+                    break;
+                }
+                if (filePath.isBlank()) {
+                    continue;
+                }
+                sb.append(checkFile(new File(filePath)).toLine()).append('\n');
+            }
+        } finally {
+            stopHeartbeat(heartbeat, beat);
+        }
+
+        if (leaseLost.get()) {
+            logger.warn("Worker {} lost the lease on shard {}, abandoning it", workerId, shard);
+            return false;
+        }
+
+        writeAtomically(resultFile(sharedDir, shard), sb.toString());
+        logger.info("Worker {} completed shard {}", workerId, shard);
+        return true;
+    }
+
+    /**
+     * Cancel a shard's heartbeat and wait until any renew already in flight has finished,
+     * so it cannot touch the lease after the result is written and the lease released
+     */
+    private void stopHeartbeat(ScheduledExecutorService heartbeat, ScheduledFuture<?> beat) throws InterruptedException {
+        beat.cancel(false);
+        try {
+            // The executor is single-threaded, so this runs only after the current beat, if any
+            heartbeat.submit(() -> { }).get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Lease heartbeat failed", e);
+        }
+    }
+
+    private ShardFileResult checkFile(File pdfFile) {
+        String filePath = pdfFile.getAbsolutePath();
+        if (!pdfFile.exists()) {
+            return new ShardFileResult(filePath, -1, -1, false, false, false, null, null, null, "Error: File not found");
+        }
+
+        DiscrepancyResult structureResult;
+        CopyOperationResult copyResult;
+        try {
+            structureResult = checker.checkPdfDiscrepancy(pdfFile);
+            copyResult = checker.checkPdfCopyOperation(pdfFile);
+        } catch (RuntimeException e) {
+            // iText throws unchecked exceptions on some malformed files; record them so the shard still completes
+            logger.error("Error checking PDF file: {}", filePath, e);
+            return new ShardFileResult(filePath, -1, -1, false, false, false, null, null, null, "Error: " + e.getMessage());
+        }
+
+        boolean hasOcgLayers = false;
+        String ocgReport = null;
+        try (FileInputStream fis = new FileInputStream(pdfFile)) {
+            PdfReader reader = new PdfReader(fis);
+            OcgLayerCheckResult ocg = ocgLayerCheckService.check(reader);
+            reader.close();
+            hasOcgLayers = ocg.error == null && ocg.hasLayers;
+            if (hasOcgLayers || ocg.error != null) {
+                ocgReport = ocg.toString();
+            }
+        } catch (Exception ex) {
+            logger.warn("OCG check failed for {}: {}", filePath, ex.getMessage());
+            ocgReport = "OCG check failed: " + ex.getMessage();
+        }
+
+        // checkPdfCopyOperation reports an exception as a mismatch with totalPages -1; count it as an error instead
+        boolean copyFailed = copyResult.getTotalPages() < 0;
+        boolean hasMismatch = copyResult.hasMismatch() && !copyFailed;
+        String errorMessage = structureResult.getErrorMessage();
+        if (errorMessage == null && copyFailed) {
+            errorMessage = "PdfCopy check failed: " + copyResult.getMessage();
+        }
+
+        return new ShardFileResult(
+            filePath,
+            structureResult.getDeclaredCount(),
+            structureResult.getActualKidsCount(),
+            structureResult.hasDiscrepancy(),
+            hasMismatch,
+            hasOcgLayers,
+            copyResult.getMessage(),
+            hasMismatch ? copyResult.toString() : null,
+            ocgReport,
+            errorMessage
+        );
+    }
+
+    /**
+     * Take the lease on a shard. New leases rely on CREATE_NEW being atomic. A lease this worker
+     * already owns counts as claimed. Expired leases are replaced under a per-shard reclaim guard,
+     * so a lease is never moved or hidden while a competing worker might be looking at it.
+     */
+    boolean tryClaim(Path sharedDir, int shard, String workerId, long now) throws IOException {
+        Path lease = leaseFile(sharedDir, shard);
+        if (createLease(lease, workerId)) {
+            return true;
+        }
+
+        String owner = readLease(lease);
+        if (owner == null) {
+            // Released between our attempt and the read; pick it up on the next pass
+            return false;
+        }
+        if (workerId.equals(owner)) {
+            return renew(sharedDir, shard, workerId);
+        }
+        if (!isExpired(lease, now)) {
+            return false;
+        }
+
+        Path guard = lease.resolveSibling(lease.getFileName().toString().replace(".lease", ".reclaim"));
+        if (!createLease(guard, workerId)) {
+            // Only clear a guard left behind by a reclaimer that died halfway through
+            if (isExpired(guard, now)) {
+                Files.deleteIfExists(guard);
+            }
+            return false;
+        }
+        try {
+            // The owner may have renewed between our first look and taking the guard
+            if (readLease(lease) != null && !isExpired(lease, now)) {
+                return false;
+            }
+            Files.deleteIfExists(lease);
+            if (!createLease(lease, workerId)) {
+                return false;
+            }
+            logger.warn("Worker {} reclaimed expired lease on shard {} (was: {})", workerId, shard, owner);
+            return true;
+        } finally {
+            Files.deleteIfExists(guard);
+        }
+    }
+
+    /**
+     * Extend our lease by rewriting it in place, which bumps its modification time. Ownership is
+     * checked and the new content written through one open channel, so a lease that another worker
+     * created at the same path is never overwritten. A lease that is briefly missing (released or
+     * mid-reclaim) is re-created if nobody else has taken it.
+     */
+    private boolean renew(Path sharedDir, int shard, String workerId) throws IOException {
+        Path lease = leaseFile(sharedDir, shard);
+        byte[] content = workerId.getBytes(StandardCharsets.UTF_8);
+
+        for (int attempt = 0; attempt < RENEW_ATTEMPTS; attempt++) {
+            try (FileChannel channel = FileChannel.open(lease, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                ByteBuffer existing = ByteBuffer.allocate((int) channel.size());
+                channel.read(existing, 0);
+                String owner = new String(existing.array(), StandardCharsets.UTF_8).trim();
+                if (!workerId.equals(owner)) {
+                    return false;
+                }
+                channel.truncate(0);
+                channel.write(ByteBuffer.wrap(content), 0);
+                return true;
+            } catch (NoSuchFileException e) {
+                if (createLease(lease, workerId)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private void release(Path sharedDir, int shard, String workerId) throws IOException {
+        Path lease = leaseFile(sharedDir, shard);
+        if (workerId.equals(readLease(lease))) {
+            Files.deleteIfExists(lease);
+        }
+    }
+
+    private boolean createLease(Path lease, String workerId) throws IOException {
+        try {
+            Files.write(lease, workerId.getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.WRITE);
+            return true;
+        } catch (FileAlreadyExistsException e) {
+            return false;
+        }
+    }
+
+    private String readLease(Path lease) throws IOException {
+        try {
+            return new String(Files.readAllBytes(lease), StandardCharsets.UTF_8).trim();
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    /**
+     * A lease or guard file is expired once its modification time is more than the lease duration
+     * older than {@code now}, a reading of {@link #filesystemNow}. A file that no longer exists counts as expired.
+     */
+    private boolean isExpired(Path lease, long now) throws IOException {
+        long modified;
+        try {
+            modified = Files.getLastModifiedTime(lease).toMillis();
+        } catch (NoSuchFileException e) {
+            return true;
+        }
+        return modified + leaseMillis < now;
+    }
+
+    /**
+     * Current time as seen by the shared filesystem, read from the modification time of a scratch
+     * file, so lease ages are never compared against a skewed local clock
+     */
+    long filesystemNow(Path dir) throws IOException {
+        Path probe = Files.createTempFile(dir, ".clock", ".tmp");
+        try {
+            return Files.getLastModifiedTime(probe).toMillis();
+        } finally {
+            Files.deleteIfExists(probe);
+        }
+    }
+
+    private int readShardCount(Path sharedDir) throws IOException {
+        Path manifest = sharedDir.resolve(MANIFEST_FILE);
+        if (!Files.exists(manifest)) {
+            throw new IllegalStateException("No manifest found in " + sharedDir + "; run the coordinator first");
+        }
+        Properties props = new Properties();
+        try (InputStream in = Files.newInputStream(manifest)) {
+            props.load(in);
+        }
+        String shardCount = props.getProperty("shardCount");
+        try {
+            return Integer.parseInt(shardCount != null ? shardCount.trim() : "");
+        } catch (NumberFormatException e) {
+            throw new IllegalStateException("Manifest " + manifest + " has no valid shardCount: " + shardCount);
+        }
+    }
+
+    /**
+     * Write to a temp file in the same directory, then rename over the target so readers
+     * on other processes never see a half-written file
+     */
+    private void writeAtomically(Path target, String content) throws IOException {
+        Path tmp = Files.createTempFile(target.getParent(), "." + target.getFileName(), ".tmp");
+        try {
+            Files.write(tmp, content.getBytes(StandardCharsets.UTF_8));
+            Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private Path shardFile(Path sharedDir, int shard) {
+        return sharedDir.resolve(SHARDS_DIR).resolve(String.format("shard-%05d.txt", shard));
+    }
+
+    Path leaseFile(Path sharedDir, int shard) {
+        return sharedDir.resolve(LEASES_DIR).resolve(String.format("shard-%05d.lease", shard));
+    }
+
+    Path resultFile(Path sharedDir, int shard) {
+        return sharedDir.resolve(RESULTS_DIR).resolve(String.format("shard-%05d.tsv", shard));
+    }
+}
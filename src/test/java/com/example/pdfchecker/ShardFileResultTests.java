@@ -0,0 +1,51 @@
+package com.example.pdfchecker;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class ShardFileResultTests {
+
+	@Test
+	void lineRoundTripPreservesTabsAndNewlines() {
+		ShardFileResult original = new ShardFileResult(
+			"/data/odd\tname\\with\nbreaks.pdf", 12, 11, true, true, false,
+			"Mismatch at page 3:\n\tcurrentPageNumber=4\r\n",
+			"⚠ PDFCOPY MISMATCH in 'breaks.pdf':\n   Internal State Timeline:\n   Before getImportedPage 3 | currentPageNumber: 3\n",
+			"Has OCG layers: YES\nLayers:\n  • Notes [OFF]\n", "Error: bad\txref");
+
+		String line = original.toLine();
+		assertFalse(line.contains("\n"));
+		assertEquals(10, line.split("\t", -1).length);
+
+		ShardFileResult parsed = ShardFileResult.fromLine(line);
+		assertEquals(original.getFilePath(), parsed.getFilePath());
+		assertEquals(12, parsed.getDeclaredCount());
+		assertEquals(11, parsed.getActualKidsCount());
+		assertTrue(parsed.hasDiscrepancy());
+		assertTrue(parsed.hasMismatch());
+		assertFalse(parsed.hasOcgLayers());
+		assertEquals(original.getCopyMessage(), parsed.getCopyMessage());
+		assertEquals(original.getCopyReport(), parsed.getCopyReport());
+		assertEquals(original.getOcgReport(), parsed.getOcgReport());
+		assertEquals(original.getErrorMessage(), parsed.getErrorMessage());
+	}
+
+	@Test
+	void lineRoundTripKeepsNullAndEmptyApart() {
+		ShardFileResult parsed = ShardFileResult.fromLine(
+			new ShardFileResult("a.pdf", 1, 1, false, false, true, "", null, null, null).toLine());
+
+		assertEquals("", parsed.getCopyMessage());
+		assertNull(parsed.getErrorMessage());
+	}
+
+	@Test
+	void malformedLineIsRejected() {
+		assertThrows(IllegalArgumentException.class, () -> ShardFileResult.fromLine("only\tthree\tfields"));
+	}
+}
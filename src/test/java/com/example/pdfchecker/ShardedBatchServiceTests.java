@@ -0,0 +1,190 @@
+package com.example.pdfchecker;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.itextpdf.text.Document;
+import com.itextpdf.text.Paragraph;
+import com.itextpdf.text.pdf.PdfWriter;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+class ShardedBatchServiceTests {
+
+	@TempDir
+	Path tempDir;
+
+	private final ShardedBatchService service =
+		new ShardedBatchService(new PdfDiscrepancyChecker(), new OcgLayerCheckService(), 2, 60, 1);
+
+	@Test
+	void coordinateWritesShardsAndManifest() throws Exception {
+		Path shared = tempDir.resolve("shared");
+
+		int shardCount = service.coordinate(shared, createPdfs(5));
+
+		assertEquals(3, shardCount);
+		assertEquals(3, countFiles(shared.resolve("shards"), ".txt"));
+		assertTrue(Files.exists(shared.resolve("manifest.properties")));
+		assertTrue(Files.readString(shared.resolve("manifest.properties")).contains("shardCount=3"));
+	}
+
+	@Test
+	void coordinateRefusesExistingManifest() throws Exception {
+		Path shared = tempDir.resolve("shared");
+		List<File> pdfs = createPdfs(1);
+		service.coordinate(shared, pdfs);
+
+		assertThrows(IllegalStateException.class, () -> service.coordinate(shared, pdfs));
+	}
+
+	@Test
+	void concurrentWorkersCompleteEveryShardOnce() throws Exception {
+		Path shared = tempDir.resolve("shared");
+		int shardCount = service.coordinate(shared, createPdfs(5));
+
+		ExecutorService pool = Executors.newFixedThreadPool(2);
+		try {
+			Future<Integer> first = pool.submit(() -> service.work(shared, "worker-a"));
+			Future<Integer> second = pool.submit(() -> service.work(shared, "worker-b"));
+
+			assertEquals(shardCount, first.get(60, TimeUnit.SECONDS) + second.get(60, TimeUnit.SECONDS));
+		} finally {
+			pool.shutdownNow();
+		}
+
+		assertEquals(shardCount, countFiles(shared.resolve("results"), ".tsv"));
+		assertEquals(0, countFiles(shared.resolve("results"), ".tmp"));
+		assertEquals(0, countFiles(shared.resolve("leases"), ""));
+		for (int shard = 0; shard < shardCount; shard++) {
+			List<String> inputs = Files.readAllLines(shared.resolve("shards").resolve(String.format("shard-%05d.txt", shard)));
+			List<String> results = Files.readAllLines(service.resultFile(shared, shard));
+			assertEquals(inputs.size(), results.size());
+		}
+	}
+
+	@Test
+	void expiredLeaseIsReclaimed() throws Exception {
+		Path shared = tempDir.resolve("shared");
+		service.coordinate(shared, createPdfs(1));
+		Path lease = service.leaseFile(shared, 0);
+		Files.write(lease, "dead-worker".getBytes(StandardCharsets.UTF_8));
+		Files.setLastModifiedTime(lease, FileTime.fromMillis(System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(10)));
+
+		assertTrue(service.tryClaim(shared, 0, "worker-a", service.filesystemNow(lease.getParent())));
+		assertEquals("worker-a", Files.readString(lease).trim());
+	}
+
+	@Test
+	void liveLeaseIsNotReclaimed() throws Exception {
+		Path shared = tempDir.resolve("shared");
+		service.coordinate(shared, createPdfs(1));
+		Path lease = service.leaseFile(shared, 0);
+		Files.write(lease, "live-worker".getBytes(StandardCharsets.UTF_8));
+
+		long now = service.filesystemNow(lease.getParent());
+		assertFalse(service.tryClaim(shared, 0, "worker-a", now));
+		assertEquals("live-worker", Files.readString(lease).trim());
+		assertTrue(service.tryClaim(shared, 0, "live-worker", now));
+	}
+
+	@Test
+	void mergeReportsMissingShards() throws Exception {
+		Path shared = tempDir.resolve("shared");
+		service.coordinate(shared, createPdfs(3));
+		service.work(shared, "worker-a");
+		Files.delete(service.resultFile(shared, 1));
+
+		assertFalse(service.merge(shared));
+		assertTrue(Files.readString(shared.resolve("summary.txt")).contains("Incomplete shards: [1]"));
+	}
+
+	@Test
+	void corruptPdfIsRecordedAsErrorAndShardCompletes() throws Exception {
+		Path shared = tempDir.resolve("shared");
+		Path corrupt = tempDir.resolve("corrupt.pdf");
+		Files.write(corrupt, "%PDF-1.4\nnot really a pdf".getBytes(StandardCharsets.UTF_8));
+		service.coordinate(shared, List.of(corrupt.toFile()));
+
+		assertEquals(1, service.work(shared, "worker-a"));
+
+		List<String> lines = Files.readAllLines(service.resultFile(shared, 0));
+		assertEquals(1, lines.size());
+		assertTrue(ShardFileResult.fromLine(lines.get(0)).getErrorMessage() != null);
+	}
+
+	@Test
+	void fileSlowerThanLeaseKeepsLeaseAlive() throws Exception {
+		// Each file takes longer than the one-second lease; the heartbeat must keep the other worker out
+		PdfDiscrepancyChecker slowChecker = new PdfDiscrepancyChecker() {
+			@Override
+			public DiscrepancyResult checkPdfDiscrepancy(File pdfFile) {
+				try {
+					Thread.sleep(2500);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				return super.checkPdfDiscrepancy(pdfFile);
+			}
+		};
+		ShardedBatchService slowService = new ShardedBatchService(slowChecker, new OcgLayerCheckService(), 1, 1, 1);
+		Path shared = tempDir.resolve("shared");
+		int shardCount = slowService.coordinate(shared, createPdfs(2));
+
+		ExecutorService pool = Executors.newFixedThreadPool(2);
+		try {
+			Future<Integer> first = pool.submit(() -> slowService.work(shared, "worker-a"));
+			Future<Integer> second = pool.submit(() -> slowService.work(shared, "worker-b"));
+
+			assertEquals(shardCount, first.get(60, TimeUnit.SECONDS) + second.get(60, TimeUnit.SECONDS));
+		} finally {
+			pool.shutdownNow();
+		}
+		assertEquals(shardCount, countFiles(shared.resolve("results"), ".tsv"));
+	}
+
+	@Test
+	void workRequiresManifest() {
+		assertThrows(IllegalStateException.class, () -> service.work(tempDir, "worker-a"));
+		assertThrows(IllegalStateException.class, () -> service.merge(tempDir));
+	}
+
+	private List<File> createPdfs(int count) throws Exception {
+		List<File> pdfs = new ArrayList<>();
+		for (int i = 1; i <= count; i++) {
+			Path pdf = tempDir.resolve("input-" + i + ".pdf");
+			Document document = new Document();
+			try (FileOutputStream out = new FileOutputStream(pdf.toFile())) {
+				PdfWriter.getInstance(document, out);
+				document.open();
+				document.add(new Paragraph("Page " + i));
+				document.close();
+			}
+			pdfs.add(pdf.toFile());
+		}
+		return pdfs;
+	}
+
+	private long countFiles(Path dir, String suffix) throws Exception {
+		try (Stream<Path> files = Files.list(dir)) {
+			return files.filter(p -> p.getFileName().toString().endsWith(suffix)).count();
+		}
+	}
+}